@@ -20,6 +20,18 @@ public interface Acceptor extends Remote {
      */
     Boolean prepare(String proposalId, Operation operation) throws RemoteException;
 
+    /**
+     * Sends a pre-accept request for the leaderless fast path. The acceptor records the proposal
+     * unless it has already seen a newer one for the same key, and reports the proposal for that
+     * key it saw last as a dependency the operation must be applied after.
+     *
+     * @param proposalId The ID of the proposal being pre-accepted
+     * @param operation  The operation proposed
+     * @return The acceptor's reply with its dependency, null if the acceptor is down
+     * @throws RemoteException If a communication-related exception occurs
+     */
+    PreAcceptReply preAccept(String proposalId, Operation operation) throws RemoteException;
+
     /**
      * Sends an accept request to the acceptor, indicating a proposal with the given proposalId
      * and the value to be accepted. The acceptor responds with either an acknowledgement of the
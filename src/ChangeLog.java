@@ -0,0 +1,109 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * ChangeLog keeps a bounded, in-order history of the changes applied to the key-value store so
+ * that watchers can stream them. Appends never block: once the buffer is full the oldest change
+ * is overwritten, and a watcher that has fallen behind is told its batch is truncated instead of
+ * holding back the apply path.
+ */
+public class ChangeLog {
+
+    private final WatchEvent[] events;
+    private final String source;
+    private long lastIndex = 0;
+    private long firstIndex = 1;
+
+    /**
+     * Constructs a ChangeLog retaining at most the given number of changes.
+     * @param capacity number of changes to retain
+     * @param source   identifies this log in the batches it returns, since indexes are only
+     *                 meaningful to the log that assigned them
+     */
+    public ChangeLog(int capacity, String source) {
+        this.events = new WatchEvent[capacity];
+        this.source = source;
+    }
+
+    /**
+     * Record a committed change and wake up any waiting watchers.
+     * @param type  the type of change (PUT or DELETE)
+     * @param key   the key that was changed
+     * @param value the new value, or null for DELETE
+     * @return the apply index assigned to the change
+     */
+    public synchronized long append(String type, String key, String value) {
+        lastIndex++;
+        events[(int) (lastIndex % events.length)] = new WatchEvent(lastIndex, type, key, value);
+        notifyAll();
+        return lastIndex;
+    }
+
+    /**
+     * Continue numbering changes after the given index, used when state is restored from a
+     * snapshot. Changes before it are not retained, so watchers resuming earlier get truncated
+     * batches. Indexes handed out by the previous incarnation after the snapshot are reused, so
+     * the log must have a new source for watchers of that incarnation to be told so.
+     * @param index apply index of the last change already reflected in the store
+     */
+    public synchronized void startAt(long index) {
+        lastIndex = index;
+        firstIndex = index + 1;
+    }
+
+    /**
+     * Get the index of the most recently applied change.
+     * @return the last apply index, 0 if nothing has been applied
+     */
+    public synchronized long getLastIndex() {
+        return lastIndex;
+    }
+
+    /**
+     * Read up to maxEvents matching changes starting at fromIndex. If no matching change is
+     * available yet the caller waits up to waitMillis for one; changes to other keys arriving in
+     * the meantime only advance the index returned with the empty batch on timeout. An index
+     * taken from a different source can't be mapped onto this log, so the read then starts from
+     * the oldest retained change and the batch is marked truncated.
+     *
+     * @param source     the source fromIndex was taken from, null on the first read
+     * @param fromIndex  the first apply index the caller is interested in
+     * @param filter     predicate on keys selecting the changes to return
+     * @param maxEvents  maximum number of changes to return
+     * @param waitMillis maximum time to wait for a change, 0 to return immediately
+     * @return the batch of changes along with the index to resume from
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public synchronized WatchBatch read(String source, long fromIndex, Predicate<String> filter,
+                                        int maxEvents, long waitMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + waitMillis;
+        boolean truncated = source != null && !source.equals(this.source);
+        long index = truncated ? 1 : Math.max(fromIndex, 1);
+        List<WatchEvent> batch = new ArrayList<>();
+        while (true) {
+            if (index <= lastIndex) {
+                // changes may have been overwritten while waiting, so check on every pass
+                long oldestIndex = Math.max(firstIndex, lastIndex - events.length + 1);
+                if (index < oldestIndex) {
+                    truncated = true;
+                    index = oldestIndex;
+                }
+                for (; index <= lastIndex && batch.size() < maxEvents; index++) {
+                    WatchEvent event = events[(int) (index % events.length)];
+                    if (filter.test(event.getKey())) {
+                        batch.add(event);
+                    }
+                }
+                if (!batch.isEmpty() || truncated) {
+                    return new WatchBatch(batch, this.source, index, truncated);
+                }
+            }
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) {
+                return new WatchBatch(batch, this.source, index, truncated);
+            }
+            wait(remaining);
+        }
+    }
+}
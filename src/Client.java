@@ -16,6 +16,8 @@ import java.util.Scanner;
  */
 public class Client {
 
+    private static final int SCAN_PAGE_SIZE = 100;
+
     /**
      * The main method to start the RMI client.
      * @param args Command-line arguments: [hostname] [port] [remoteObjectName]
@@ -79,7 +81,7 @@ public class Client {
             while (true) {
                 try {
                     Scanner sc = new Scanner(System.in);
-                    System.out.println("Enter operation: PUT <key> <value> or GET <key> or DELETE <key> or SHUTDOWN:");
+                    System.out.println("Enter operation: PUT <key> <value> [ttlSeconds] or GET <key> or DELETE <key> or SCAN <startKey> <endKey> or SHUTDOWN:");
                     String operation = sc.nextLine();
                     addition = random.nextInt(4);
                     registry = LocateRegistry.getRegistry(hostname, port + addition, rmiClientSocketFactory);
@@ -91,7 +93,8 @@ public class Client {
 
                     else if (operation.toLowerCase().startsWith("put ") ||
                             operation.toLowerCase().startsWith("get ") ||
-                            operation.toLowerCase().startsWith("delete ")) {
+                            operation.toLowerCase().startsWith("delete ") ||
+                            operation.toLowerCase().startsWith("scan ")) {
                         handleOperation(operation, remoteObject ,helper);
                     }
                 } catch (RemoteException e) {
@@ -121,7 +124,7 @@ public class Client {
     private static void handleOperation(String operation, KVStore remoteObject,Helper helper)
             throws ServerNotActiveException, RemoteException, InterruptedException {
         helper.logMessage("Received operation - " + operation);
-        ProcessRequest response = processRequest(operation, remoteObject);
+        ProcessRequest response = processRequest(operation, remoteObject, helper);
         String responseData;
         if (!response.status) {
             helper.logError("Operation failed: ");
@@ -137,11 +140,12 @@ public class Client {
      *
      * @param requestData  The request data containing the operation (e.g., "PUT key value", "GET key", "DELETE key").
      * @param remoteObject The reference to the remote object implementing the RemoteInterface.
+     * @param helper       The helper instance used to print SCAN pages as they arrive.
      * @return A ProcessRequest object containing the response status and message.
      * @throws RemoteException          If an RMI communication-related exception occurs.
      * @throws ServerNotActiveException If the server is not active during the RMI call.
      */
-    private static ProcessRequest processRequest(String requestData, KVStore remoteObject)
+    private static ProcessRequest processRequest(String requestData, KVStore remoteObject, Helper helper)
             throws RemoteException, InterruptedException {
 
         if (requestData.toLowerCase().startsWith("put")) {
@@ -155,6 +159,19 @@ public class Client {
                     remoteObject.put(key, value);
                     return new ProcessRequest(true, "PUT process successful", "Key:" + key + " added with the Value:" + value);
                 }
+            } else if (parts.length == 4) {
+                String key = parts[1];
+                String value = parts[2];
+                try {
+                    long ttlSeconds = Long.parseLong(parts[3]);
+                    if (ttlSeconds <= 0) {
+                        return new ProcessRequest(false, "PUT operation failed due to non-positive TTL", "");
+                    }
+                    remoteObject.put(key, value, ttlSeconds * 1000L);
+                    return new ProcessRequest(true, "PUT process successful", "Key:" + key + " added with the Value:" + value + " for " + ttlSeconds + " seconds");
+                } catch (NumberFormatException e) {
+                    return new ProcessRequest(false, "PUT operation failed due to malformed TTL", "");
+                }
             } else {
                 return new ProcessRequest(false, "PUT operation failed due to malformed input", "");
             }
@@ -190,6 +207,28 @@ public class Client {
                 return new ProcessRequest(false, "DELETE operation failed due to malformed input", "");
             }
         }
+        if (requestData.toLowerCase().startsWith("scan")) {
+            String[] parts = requestData.split(" ");
+            if (parts.length == 3) {
+                // fetch the range page by page and print each page as it arrives
+                int count = 0;
+                String token = null;
+                do {
+                    ScanResult page = remoteObject.scan(parts[1], parts[2], SCAN_PAGE_SIZE, token);
+                    StringBuilder entries = new StringBuilder();
+                    for (int i = 0; i < page.size(); i++) {
+                        entries.append(" ").append(page.getKeys().get(i)).append(":").append(page.getValues().get(i));
+                    }
+                    if (page.size() > 0)
+                        helper.logMessage("Entries in range -" + entries);
+                    count += page.size();
+                    token = page.getContinuationToken();
+                } while (token != null);
+                return new ProcessRequest(true, "SCAN process successful", count + " entries in range");
+            } else {
+                return new ProcessRequest(false, "SCAN operation failed due to malformed input", "");
+            }
+        }
         return new ProcessRequest(false, "Operation failed due to malformed input", "");
     }
 
@@ -1,5 +1,6 @@
 import java.rmi.Remote;
 import java.rmi.RemoteException;
+import java.util.Set;
 
 
 /**
@@ -17,6 +18,16 @@ public interface KVStore extends Remote {
      */
     String put(String key, String value) throws RemoteException, InterruptedException;
 
+    /**
+     * Method to put key-value pair in the key-value store that expires after a time-to-live
+     * @param key string key
+     * @param value string value
+     * @param ttlMillis time in milliseconds after which the key is removed, must be positive
+     * @return string success/failure message
+     * @throws RemoteException if procedure can't be called
+     */
+    String put(String key, String value, long ttlMillis) throws RemoteException, InterruptedException;
+
     /**
      * Method to delete a key from the key-value store
      * @param key integer key
@@ -43,4 +54,52 @@ public interface KVStore extends Remote {
      */
     Boolean containsKey(String key) throws RemoteException, InterruptedException;
 
+    /**
+     * Method to stream committed changes for keys starting with a prefix. Changes are returned in
+     * apply order; pass the batch's source and next index back to continue after a disconnect.
+     * Apply indexes are local to each replica and restart with it, so resuming on a different
+     * replica, or on the same one after it restarted, returns a truncated batch starting from the
+     * oldest retained change.
+     *
+     * @param prefix     key prefix to watch, empty string for all keys
+     * @param source     source of the previous batch, null on the first call
+     * @param fromIndex  apply index to start from (1 for the oldest retained change)
+     * @param maxEvents  maximum number of changes in the returned batch
+     * @param waitMillis maximum time to wait for a matching change when none is available
+     * @return batch of changes and the index to resume from
+     * @throws RemoteException    if procedure can't be called
+     * @throws InterruptedException if the method is interrupted while waiting
+     */
+    WatchBatch watch(String prefix, String source, long fromIndex, int maxEvents, long waitMillis)
+            throws RemoteException, InterruptedException;
+
+    /**
+     * Method to stream committed changes for a fixed set of keys. Indexes are local to each
+     * replica, as for the prefix watch.
+     *
+     * @param keys       keys to watch
+     * @param source     source of the previous batch, null on the first call
+     * @param fromIndex  apply index to start from (1 for the oldest retained change)
+     * @param maxEvents  maximum number of changes in the returned batch
+     * @param waitMillis maximum time to wait for a matching change when none is available
+     * @return batch of changes and the index to resume from
+     * @throws RemoteException    if procedure can't be called
+     * @throws InterruptedException if the method is interrupted while waiting
+     */
+    WatchBatch watch(Set<String> keys, String source, long fromIndex, int maxEvents, long waitMillis)
+            throws RemoteException, InterruptedException;
+
+    /**
+     * Method to list key-value pairs in key order within a range, one page at a time.
+     *
+     * @param startKey          first key of the range (inclusive), null for the smallest key
+     * @param endKey            last key of the range (exclusive), null for no upper bound
+     * @param limit             maximum number of pairs in the returned page
+     * @param continuationToken token from the previous page, null for the first page
+     * @return page of key-value pairs and the token for the next page
+     * @throws RemoteException if procedure can't be called or the server has no sorted index
+     */
+    ScanResult scan(String startKey, String endKey, int limit, String continuationToken)
+            throws RemoteException;
+
 }
@@ -19,4 +19,24 @@ public interface Learner extends Remote {
      */
     void learn(String proposalId, Operation acceptedValue) throws RemoteException;
 
+    /**
+     * Informs the learner about a proposal that a proposer has already committed on the fast path
+     * after a fast quorum of acceptors pre-accepted it. The learner applies it without waiting for
+     * further acknowledgements, once the operation's dependencies have been applied.
+     *
+     * @param proposalId    The ID of the proposal that has been committed
+     * @param acceptedValue The value that has been committed
+     * @throws RemoteException If a communication-related exception occurs
+     */
+    void commit(String proposalId, Operation acceptedValue) throws RemoteException;
+
+    /**
+     * Informs the learner that a proposal will never be committed, so operations that depend on
+     * it no longer have to wait for it.
+     *
+     * @param proposalId The ID of the proposal that has been abandoned
+     * @throws RemoteException If a communication-related exception occurs
+     */
+    void abandon(String proposalId) throws RemoteException;
+
 }
@@ -1,7 +1,12 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.rmi.registry.LocateRegistry;
 import java.rmi.registry.Registry;
 import java.util.Timer;
 import java.util.TimerTask;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 /**
  * PaxosServer class represents the main entry point for launching Paxos servers.
@@ -23,6 +28,100 @@ public class PaxosServer {
         }, 10000, 100000);
     }
 
+    /**
+     * Schedule periodic expiry of keys whose time-to-live has passed.
+     * @param servers The array of servers.
+     * @param helper The helper instance for logging messages.
+     */
+    private static void expiryScheduler(ServerImpl[] servers, Helper helper) {
+        Timer timer = new Timer();
+        timer.schedule(new TimerTask() {
+            @Override
+            public void run() {
+                for (ServerImpl server : servers) {
+                    try {
+                        server.proposeExpiry();
+                    } catch (Exception e) {
+                        helper.logError("Expiry failed at port " + server.getPort() + ": " + e.getMessage());
+                    }
+                }
+            }
+        }, 1000, 1000);
+    }
+
+    /**
+     * Schedule periodic reclamation of large values no longer referenced by any server.
+     * @param servers The array of servers.
+     */
+    private static void valueGcScheduler(ServerImpl[] servers) {
+        Timer timer = new Timer();
+        timer.schedule(new TimerTask() {
+            @Override
+            public void run() {
+                for (ServerImpl server : servers) {
+                    server.collectValueGarbage();
+                }
+            }
+        }, 60000, 60000);
+    }
+
+    /**
+     * Schedule periodic snapshots so that a restarted server can map its state instead of
+     * rebuilding it. New proposals are held back while every server is snapshotted, so all the
+     * snapshots of one cut contain the same writes.
+     * @param servers The array of servers.
+     * @param proposalGate The gate every proposal passes through.
+     */
+    private static void snapshotScheduler(ServerImpl[] servers, ReadWriteLock proposalGate) {
+        Timer timer = new Timer();
+        timer.schedule(new TimerTask() {
+            @Override
+            public void run() {
+                proposalGate.writeLock().lock();
+                try {
+                    long cut = System.currentTimeMillis();
+                    for (ServerImpl server : servers) {
+                        server.writeSnapshot(cut);
+                    }
+                } finally {
+                    proposalGate.writeLock().unlock();
+                }
+            }
+        }, 60000, 60000);
+    }
+
+    /**
+     * Find the snapshot with the latest cut among the servers' snapshot files. Every server is
+     * restored from it, so the replicas restart with the same state even if the last snapshot
+     * round did not complete on all of them.
+     * @param firstPort The port of the first server.
+     * @param serversNum The number of servers.
+     * @param helper The helper instance for logging messages.
+     * @return the snapshot file to restore from, or null if there is none
+     */
+    private static Path latestSnapshot(int firstPort, int serversNum, Helper helper) {
+        Path latest = null;
+        long latestCut = Long.MIN_VALUE;
+        for (int serverId = 0; serverId < serversNum; serverId++) {
+            Path path = ServerImpl.getSnapshotPath(firstPort + serverId);
+            if (!Files.exists(path)) {
+                continue;
+            }
+            try {
+                long cut = Snapshot.open(path).getCut();
+                if (cut > latestCut) {
+                    latest = path;
+                    latestCut = cut;
+                }
+            } catch (IOException e) {
+                helper.logError("Ignoring snapshot " + path + ": " + e.getMessage());
+            }
+        }
+        if (latest != null)
+            helper.logMessage("Restoring every server from " + latest + " taken at cut " + latestCut);
+        return latest;
+    }
+
     /**
      * Drop a server randomly or ignore when triggered.
      * @param servers The array of servers.
@@ -54,6 +153,8 @@ public class PaxosServer {
                 String remoteObjectName = args[1];
 
                 ServerImpl[] servers = new ServerImpl[serversNum];
+                Path snapshot = latestSnapshot(portInput, serversNum, helper);
+                ReadWriteLock proposalGate = new ReentrantReadWriteLock();
 
                 // Create and bind servers
                 for (int serverId = 0; serverId < serversNum; serverId++) {
@@ -62,7 +163,9 @@ public class PaxosServer {
                     LocateRegistry.createRegistry(port);
 
                     // Create server instance
-                    servers[serverId] = new ServerImpl(serverId, port);
+                    servers[serverId] = new ServerImpl(serverId, port, true);
+                    if (snapshot != null)
+                        servers[serverId].restoreFromSnapshot(snapshot);
 
                     // Bind the server to the RMI registry
                     Registry registry = LocateRegistry.getRegistry(port);
@@ -81,7 +184,13 @@ public class PaxosServer {
                     }
                     servers[serverId].setAcceptors(acceptors);
                     servers[serverId].setLearners(learners);
+                    servers[serverId].setValueReplicas(servers);
+                    servers[serverId].setLeaderlessMode(true);
+                    servers[serverId].setProposalGate(proposalGate);
                 }
+                expiryScheduler(servers, helper);
+                valueGcScheduler(servers);
+                snapshotScheduler(servers, proposalGate);
 
             } catch (Exception e) {
                 helper.logError("Server exception: " + e.getMessage());
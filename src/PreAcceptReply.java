@@ -0,0 +1,32 @@
+import java.io.Serializable;
+
+/**
+ * PreAcceptReply is an acceptor's answer to a pre-accept request on the leaderless fast path. Along
+ * with whether the acceptor agreed, it names the older proposal for the same key that the acceptor
+ * saw last, which the new operation must be applied after.
+ */
+public class PreAcceptReply implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final boolean accepted;
+    private final String dependency;
+
+    /**
+     * Constructs a PreAcceptReply.
+     * @param accepted   true if the acceptor recorded the proposal
+     * @param dependency ID of the older proposal for the same key, null if there is none
+     */
+    public PreAcceptReply(boolean accepted, String dependency) {
+        this.accepted = accepted;
+        this.dependency = dependency;
+    }
+
+    public boolean isAccepted() {
+        return accepted;
+    }
+
+    public String getDependency() {
+        return dependency;
+    }
+}
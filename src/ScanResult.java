@@ -0,0 +1,50 @@
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * ScanResult is one page of key-value pairs returned by a range scan, in key order. When more
+ * keys remain in the range, the continuation token is passed back to scan to fetch the next page.
+ */
+public class ScanResult implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final List<String> keys = new ArrayList<>();
+    private final List<String> values = new ArrayList<>();
+    private String continuationToken;
+
+    /**
+     * Add a key-value pair to the page.
+     * @param key   the key
+     * @param value the value stored for the key
+     */
+    void add(String key, String value) {
+        keys.add(key);
+        values.add(value);
+    }
+
+    void setContinuationToken(String continuationToken) {
+        this.continuationToken = continuationToken;
+    }
+
+    public List<String> getKeys() {
+        return keys;
+    }
+
+    public List<String> getValues() {
+        return values;
+    }
+
+    public int size() {
+        return keys.size();
+    }
+
+    /**
+     * Get the token to fetch the next page.
+     * @return the continuation token, or null if the scan is complete
+     */
+    public String getContinuationToken() {
+        return continuationToken;
+    }
+}
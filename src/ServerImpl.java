@@ -1,22 +1,34 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.rmi.RemoteException;
 import java.rmi.server.UnicastRemoteObject;
+import java.util.AbstractMap;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.NavigableSet;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.locks.ReadWriteLock;
 
 /**
  * ServerImpl class implements various roles in the Paxos algorithm and serves as a key-value store server.
  */
-public class ServerImpl extends UnicastRemoteObject implements Proposer, Acceptor, Learner, KVStore {
+public class ServerImpl extends UnicastRemoteObject implements Proposer, Acceptor, Learner, KVStore, ValueReplica {
 
-    boolean success = false;
     double divisionFactor = 2.0;
     int serverDelayTime = 100;
     private final Map<String, Pair<String, Operation>> historyEntries;
     private Acceptor[] consensusAcceptors;
     private Learner[] knowledgeLearners;
+    private ValueReplica[] valueReplicas;
     private final int uniqueServerId;
     private final Map<String, Pair<Integer, Boolean>> learningRecord;
     private long downtimeTracker = 0;
@@ -24,6 +36,31 @@ public class ServerImpl extends UnicastRemoteObject implements Proposer, Accepto
     private boolean serverStatus = false;
     private final int port;
     private final Helper helper;
+    private final int maxWatchBatchSize = 1000;
+    private final ChangeLog changeLog;
+    private final int maxScanPageSize = 1000;
+    private final ConcurrentSkipListSet<String> sortedIndex;
+    private final String expiryKey = "__expire__";
+    private final long expiryStaggerMillis = 200;
+    private final ConcurrentHashMap<String, Long> expiryDeadlines = new ConcurrentHashMap<>();
+    private boolean leaderlessMode = false;
+    private final Map<String, Operation> waitingOperations = new HashMap<>();
+    private final int largeValueThreshold = 64 * 1024;
+    private final int valueChunkSize = 64 * 1024;
+    private final long valueGcGraceMillis = 60000;
+    private final ValueLog valueLog = new ValueLog();
+    private final TimingWheel expiryWheel = new TimingWheel(100, 64, System.currentTimeMillis());
+    private final int snapshotLoadBatchSize = 1000;
+    private final Path snapshotPath;
+    private volatile Snapshot snapshot;
+    private final Set<String> removedSinceSnapshot = new HashSet<>();
+    // acceptor and learner state have their own locks, so a proposer never holds a lock that a
+    // peer's proposer needs while it waits on that peer
+    private final Object acceptorLock = new Object();
+    private final Object learnerLock = new Object();
+    private final ConcurrentHashMap<String, Boolean> pendingResults = new ConcurrentHashMap<>();
+    private long lastProposalTime = 0;
+    private ReadWriteLock proposalGate;
 
 
     /**
@@ -34,11 +71,212 @@ public class ServerImpl extends UnicastRemoteObject implements Proposer, Accepto
      * @throws RemoteException if RMI error occurs.
      */
     public ServerImpl(int serverId, int port) throws RemoteException {
+        this(serverId, port, false);
+    }
+
+    /**
+     * Constructor to create a Server instance, optionally keeping a sorted index of keys.
+     *
+     * @param serverId The unique ID of this server.
+     * @param port The port number this server listens on.
+     * @param sortedIndexEnabled true to maintain the sorted key index used by range scans.
+     * @throws RemoteException if RMI error occurs.
+     */
+    public ServerImpl(int serverId, int port, boolean sortedIndexEnabled) throws RemoteException {
         this.uniqueServerId = serverId;
         this.port = port;
         this.historyEntries = new HashMap<>();
         this.learningRecord = new HashMap<>();
         this.helper = new Helper();
+        // the start time marks this incarnation, so indexes reused after a restart are not mistaken
+        // for the ones a watcher saw before it
+        this.changeLog = new ChangeLog(10000, "server-" + serverId + "@" + System.currentTimeMillis());
+        this.sortedIndex = sortedIndexEnabled ? new ConcurrentSkipListSet<>() : null;
+        this.snapshotPath = getSnapshotPath(port);
+    }
+
+    /**
+     * Get the snapshot file of the server listening on a port.
+     * @param port The port number of the server.
+     * @return the snapshot file path
+     */
+    public static Path getSnapshotPath(int port) {
+        return Paths.get("snapshot-" + port + ".dat");
+    }
+
+    /**
+     * Restore state from a snapshot file. Every replica must restore from the same file so that
+     * they start out identical. The file is memory-mapped and served from immediately; entries are
+     * copied into the live store in the background, or on first access, so startup time does not
+     * depend on the size of the snapshot.
+     * @param path The snapshot file, normally the one with the latest cut among the replicas.
+     */
+    public void restoreFromSnapshot(Path path) {
+        if (!Files.exists(path)) {
+            return;
+        }
+        try {
+            Snapshot restored = Snapshot.open(path);
+            changeLog.startAt(restored.getLastIndex());
+            this.snapshot = restored;
+            helper.logMessage("Mapped snapshot with " + restored.size() + " entries up to index " + restored.getLastIndex());
+            Thread loader = new Thread(this::loadSnapshot, "snapshot-loader-" + port);
+            loader.setDaemon(true);
+            loader.start();
+        } catch (IOException e) {
+            helper.logError("Unable to map snapshot " + path + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Write the current state of the store to this server's snapshot file. Skipped while a
+     * previous snapshot is still being loaded, since the live store is incomplete until then.
+     * Only a linear copy is taken under the learner lock; without a sorted index the entries are
+     * sorted afterwards, so applying operations isn't held up for the sort. The caller holds the
+     * proposal gate closed across all replicas so that every snapshot of a cut has the same writes.
+     * @param cut Identifies the cut shared by every replica's snapshot.
+     */
+    public void writeSnapshot(long cut) {
+        List<Map.Entry<String, String>> entries = new ArrayList<>();
+        Map<String, Long> deadlines;
+        long lastIndex;
+        synchronized (learnerLock) {
+            if (snapshot != null) {
+                return;
+            }
+            if (sortedIndex != null) {
+                for (String key : sortedIndex) {
+                    String value = keyValueStore.get(key);
+                    if (value != null)
+                        entries.add(new AbstractMap.SimpleImmutableEntry<>(key, value));
+                }
+            } else {
+                for (Map.Entry<String, String> entry : keyValueStore.entrySet())
+                    entries.add(new AbstractMap.SimpleImmutableEntry<>(entry));
+            }
+            deadlines = new HashMap<>(expiryDeadlines);
+            lastIndex = changeLog.getLastIndex();
+        }
+        if (sortedIndex == null)
+            entries.sort(Map.Entry.comparingByKey());
+        try {
+            Snapshot.write(snapshotPath, cut, lastIndex, entries, deadlines);
+            helper.logMessage("Wrote snapshot at cut " + cut + " with " + entries.size() + " entries up to index " + lastIndex);
+        } catch (IOException e) {
+            helper.logError("Unable to write snapshot " + snapshotPath + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Copy every snapshot entry into the live store, one batch per lock acquisition so consensus
+     * keeps running in between, then release the mapping.
+     */
+    private void loadSnapshot() {
+        Snapshot loading = snapshot;
+        for (int start = 0; start < loading.size(); start += snapshotLoadBatchSize) {
+            synchronized (learnerLock) {
+                for (int i = start; i < Math.min(start + snapshotLoadBatchSize, loading.size()); i++) {
+                    loadSnapshotEntry(loading, i);
+                }
+            }
+        }
+        synchronized (learnerLock) {
+            snapshot = null;
+            removedSinceSnapshot.clear();
+        }
+        helper.logMessage("Finished loading snapshot with " + loading.size() + " entries");
+    }
+
+    /**
+     * Load a single key from the snapshot into the live store if it is not there yet.
+     * @param key The key to load.
+     */
+    private void loadFromSnapshot(String key) {
+        synchronized (learnerLock) {
+            Snapshot current = snapshot;
+            if (current != null) {
+                int position = current.find(key);
+                if (position >= 0)
+                    loadSnapshotEntry(current, position);
+            }
+        }
+    }
+
+    /**
+     * Load snapshot entries at or after a key into the live store until the given number of live
+     * keys has been loaded, so that a scan page starting there sees the same keys it would once
+     * loading has finished.
+     * @param fromKey The first key, null for the smallest key.
+     * @param inclusive Whether fromKey itself may be loaded.
+     * @param endKey The end of the range (exclusive), null for no upper bound.
+     * @param limit Number of live entries to load.
+     */
+    private void loadSnapshotRange(String fromKey, boolean inclusive, String endKey, int limit) {
+        synchronized (learnerLock) {
+            Snapshot current = snapshot;
+            if (current == null) {
+                return;
+            }
+            int loaded = 0;
+            for (int i = fromKey == null ? 0 : current.ceiling(fromKey); i < current.size() && loaded < limit; i++) {
+                String key = current.keyAt(i);
+                if (endKey != null && key.compareTo(endKey) >= 0)
+                    break;
+                if ((inclusive || !key.equals(fromKey)) && !removedSinceSnapshot.contains(key)) {
+                    loadSnapshotEntry(current, i);
+                    // expired keys are skipped by scan, so they don't count towards the page
+                    if (keyValueStore.containsKey(key) && isLive(key))
+                        loaded++;
+                }
+            }
+        }
+    }
+
+    /**
+     * Copy one snapshot record into the live store unless the key has been written or deleted
+     * since the snapshot was mapped.
+     * @param current The snapshot being loaded.
+     * @param position The record position.
+     */
+    private void loadSnapshotEntry(Snapshot current, int position) {
+        String key = current.keyAt(position);
+        if (removedSinceSnapshot.contains(key) || keyValueStore.containsKey(key)) {
+            return;
+        }
+        keyValueStore.put(key, current.valueAt(position));
+        if (sortedIndex != null) sortedIndex.add(key);
+        long expiresAt = current.expiresAt(position);
+        if (expiresAt > 0) {
+            expiryDeadlines.put(key, expiresAt);
+            expiryWheel.add(key, expiresAt);
+        }
+    }
+
+    /**
+     * Set the replicas that large values are shipped to before consensus.
+     * @param replicas Array of value replicas.
+     */
+    public void setValueReplicas(ValueReplica[] replicas) {
+        this.valueReplicas = replicas;
+    }
+
+    /**
+     * Set the gate shared by the replicas that new proposals pass through. Snapshots close it
+     * while they are taken, so no write is applied on some replicas and not on others.
+     * @param proposalGate Lock whose read side is held by every proposal.
+     */
+    public void setProposalGate(ReadWriteLock proposalGate) {
+        this.proposalGate = proposalGate;
+    }
+
+    /**
+     * Enable or disable the leaderless fast path. When enabled, an operation whose pre-accept is
+     * agreed by a fast quorum of acceptors reporting the same dependency commits after a single
+     * round; otherwise it falls back to prepare/accept carrying the dependencies it collected.
+     * @param leaderlessMode true to try the fast path before the prepare/accept rounds.
+     */
+    public void setLeaderlessMode(boolean leaderlessMode) {
+        this.leaderlessMode = leaderlessMode;
     }
 
     /**
@@ -68,11 +306,10 @@ public class ServerImpl extends UnicastRemoteObject implements Proposer, Accepto
 
 
     @Override
-    public synchronized String put(String key, String value)
+    public String put(String key, String value)
             throws RemoteException, InterruptedException {
-        success = false;
-        proposeOperation(new Operation("PUT", key, value));
-        if (success)
+        Operation operation = createPutOperation(key, value, 0);
+        if (operation != null && proposeOperation(operation))
             return "PUT operation successful for key - "+ key +" with value - "+value;
         else
             return "Error occurred during PUT operation for key - "+key;
@@ -80,10 +317,22 @@ public class ServerImpl extends UnicastRemoteObject implements Proposer, Accepto
 
 
     @Override
-    public synchronized String delete(String key) throws RemoteException, InterruptedException {
-        success = false;
-        proposeOperation(new Operation("DELETE", key, null));
-        if (success)
+    public String put(String key, String value, long ttlMillis)
+            throws RemoteException, InterruptedException {
+        if (ttlMillis <= 0)
+            return "Error occurred during PUT operation for key - "+key+": TTL must be positive";
+        // the deadline is fixed here so every replica expires the key at the same point
+        Operation operation = createPutOperation(key, value, System.currentTimeMillis() + ttlMillis);
+        if (operation != null && proposeOperation(operation))
+            return "PUT operation successful for key - "+ key +" with value - "+value+" expiring in "+ttlMillis+" ms";
+        else
+            return "Error occurred during PUT operation for key - "+key;
+    }
+
+
+    @Override
+    public String delete(String key) throws RemoteException, InterruptedException {
+        if (proposeOperation(new Operation("DELETE", key, null)))
             return "DELETE operation successful for key - "+ key;
         else
             return "Error occurred during DELETE operation for key - "+key;
@@ -92,7 +341,8 @@ public class ServerImpl extends UnicastRemoteObject implements Proposer, Accepto
 
     @Override
     public synchronized  String get(String key) throws RemoteException {
-        if (keyValueStore.containsKey(key)) {
+        if (snapshot != null) loadFromSnapshot(key);
+        if (keyValueStore.containsKey(key) && isLive(key)) {
             helper.logMessage("GET Operation successful for Key :"+key);
             return keyValueStore.get(key);
         }
@@ -102,17 +352,212 @@ public class ServerImpl extends UnicastRemoteObject implements Proposer, Accepto
 
     @Override
     public Boolean containsKey(String key) throws RemoteException, InterruptedException {
-        return keyValueStore.containsKey(key);
+        if (snapshot != null) loadFromSnapshot(key);
+        return keyValueStore.containsKey(key) && isLive(key);
+    }
+
+    /**
+     * Build the PUT operation for a value. Values above the threshold are shipped to the value
+     * replicas in chunks first, and the operation only carries their hash and length.
+     * @param key The key to put.
+     * @param value The value to put.
+     * @param expiresAt The expiry deadline, 0 if the key does not expire.
+     * @return the operation to propose, or null if too few replicas stored the value
+     * @throws RemoteException If a remote error occurs.
+     */
+    private Operation createPutOperation(String key, String value, long expiresAt) throws RemoteException {
+        byte[] data = value.getBytes(StandardCharsets.UTF_8);
+        if (data.length <= largeValueThreshold || valueReplicas == null) {
+            return new Operation("PUT", key, value, expiresAt);
+        }
+        String valueHash = ValueLog.hash(value);
+        int storedCount = 0;
+        for (ValueReplica replica : valueReplicas) {
+            boolean stored = true;
+            for (int offset = 0; offset < data.length && stored; offset += valueChunkSize) {
+                byte[] chunk = Arrays.copyOfRange(data, offset, Math.min(offset + valueChunkSize, data.length));
+                stored = Boolean.TRUE.equals(replica.storeValueChunk(valueHash, data.length, offset, chunk));
+            }
+            if (stored)
+                storedCount += 1;
+        }
+        if (storedCount < Math.ceil(valueReplicas.length/divisionFactor)) {
+            helper.logError("Large value for Key - " + key + " reached only " + storedCount + " replicas");
+            return null;
+        }
+        Operation operation = new Operation("PUT", key, null, expiresAt);
+        operation.valueHash = valueHash;
+        operation.valueLength = data.length;
+        return operation;
+    }
+
+    @Override
+    public Boolean storeValueChunk(String valueHash, int valueLength, int offset, byte[] chunk)
+            throws RemoteException {
+        if(checkAcceptorStatus()) {
+            return null;
+        }
+        return valueLog.storeChunk(valueHash, valueLength, offset, chunk);
+    }
+
+    @Override
+    public byte[] readValueChunk(String valueHash, int offset, int length) throws RemoteException {
+        if(checkAcceptorStatus()) {
+            return null;
+        }
+        return valueLog.readChunk(valueHash, offset, length);
+    }
+
+    /**
+     * Fetch a large value this server never received from the first peer that holds it.
+     * @param valueHash The hash of the value.
+     * @param valueLength The length of the value in bytes.
+     * @return the value, or null if no reachable peer holds it
+     * @throws RemoteException If a remote error occurs.
+     */
+    private String fetchValue(String valueHash, int valueLength) throws RemoteException {
+        if (valueReplicas == null) {
+            return null;
+        }
+        for (ValueReplica replica : valueReplicas) {
+            if (replica == this) {
+                continue;
+            }
+            for (int offset = 0; offset < valueLength; offset += valueChunkSize) {
+                byte[] chunk = replica.readValueChunk(valueHash, offset, Math.min(valueChunkSize, valueLength - offset));
+                if (chunk == null || !valueLog.storeChunk(valueHash, valueLength, offset, chunk))
+                    break;
+            }
+            if (valueLog.contains(valueHash)) {
+                helper.logMessage("Fetched value " + valueHash + " from a peer");
+                return valueLog.get(valueHash);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Reclaim large values that no acceptor state references any more.
+     */
+    public void collectValueGarbage() {
+        Set<String> liveHashes = new HashSet<>();
+        synchronized (acceptorLock) {
+            for (Pair<String, Operation> entry : historyEntries.values()) {
+                if (entry.getValue().valueHash != null)
+                    liveHashes.add(entry.getValue().valueHash);
+            }
+        }
+        int dropped = valueLog.collectGarbage(liveHashes, System.currentTimeMillis() - valueGcGraceMillis);
+        if (dropped > 0)
+            helper.logMessage("Value log reclaimed " + dropped + " values");
+    }
+
+    /**
+     * Check that a key has not passed its expiry deadline. Expired keys stay in the store until the
+     * replicated EXPIRE operation purges them, but are hidden from reads in the meantime.
+     * @param key the key to check
+     * @return true if the key has no deadline or its deadline is still ahead
+     */
+    private boolean isLive(String key) {
+        Long deadline = expiryDeadlines.get(key);
+        return deadline == null || deadline > System.currentTimeMillis();
+    }
+
+    /**
+     * Propose a single EXPIRE operation purging every key whose deadline has passed. Each server
+     * waits an extra stagger proportional to its ID before proposing, so normally only the lowest
+     * live server spends a consensus round on it. Only the check holds the learner lock, so the
+     * proposal itself takes no lock that a client operation on a peer could be waiting for.
+     * @throws RemoteException If a remote error occurs.
+     */
+    public void proposeExpiry() throws RemoteException, InterruptedException {
+        long now = System.currentTimeMillis();
+        boolean due;
+        synchronized (learnerLock) {
+            due = expiryWheel.hasDue(now - uniqueServerId * expiryStaggerMillis);
+        }
+        if (due) {
+            proposeOperation(new Operation("EXPIRE", expiryKey, null, now));
+        }
+    }
+
+    @Override
+    public WatchBatch watch(String prefix, String source, long fromIndex, int maxEvents, long waitMillis)
+            throws RemoteException, InterruptedException {
+        return changeLog.read(source, fromIndex, key -> key.startsWith(prefix),
+                Math.min(maxEvents, maxWatchBatchSize), waitMillis);
+    }
+
+
+    @Override
+    public WatchBatch watch(Set<String> keys, String source, long fromIndex, int maxEvents, long waitMillis)
+            throws RemoteException, InterruptedException {
+        return changeLog.read(source, fromIndex, keys::contains,
+                Math.min(maxEvents, maxWatchBatchSize), waitMillis);
+    }
+
+    @Override
+    public ScanResult scan(String startKey, String endKey, int limit, String continuationToken)
+            throws RemoteException {
+        if (sortedIndex == null) {
+            throw new RemoteException("Sorted index is not enabled on server " + uniqueServerId);
+        }
+        int pageSize = Math.max(1, Math.min(limit, maxScanPageSize));
+        if (snapshot != null) {
+            if (continuationToken != null)
+                loadSnapshotRange(continuationToken, false, endKey, pageSize + 1);
+            else
+                loadSnapshotRange(startKey, true, endKey, pageSize + 1);
+        }
+        NavigableSet<String> range = sortedIndex;
+        if (continuationToken != null) {
+            range = range.tailSet(continuationToken, false);
+        } else if (startKey != null) {
+            range = range.tailSet(startKey, true);
+        }
+        if (endKey != null) {
+            range = range.headSet(endKey, false);
+        }
+
+        // walk the live index lazily so only one page is ever materialised
+        ScanResult page = new ScanResult();
+        String lastKey = null;
+        for (String key : range) {
+            if (page.size() == pageSize) {
+                page.setContinuationToken(lastKey);
+                break;
+            }
+            String value = keyValueStore.get(key);
+            if (value != null && isLive(key)) {
+                page.add(key, value);
+                lastKey = key;
+            }
+        }
+        helper.logMessage("SCAN Operation returned " + page.size() + " entries");
+        return page;
     }
 
     /**
      * Propose an operation to be applied.
      * @param operation The operation to be proposed.
+     * @return true if this server applied the operation successfully
      * @throws RemoteException If a remote error occurs.
      */
-    private void proposeOperation(Operation operation) throws RemoteException, InterruptedException {
-        String proposalId = generateProposalId();
-        propose(proposalId, operation);
+    private boolean proposeOperation(Operation operation) throws RemoteException, InterruptedException {
+        if (proposalGate != null) proposalGate.readLock().lock();
+        try {
+            String proposalId = generateProposalId();
+            // the local learner records the outcome here, since other proposals may be applied meanwhile
+            pendingResults.put(proposalId, false);
+            try {
+                propose(proposalId, operation);
+                return pendingResults.get(proposalId);
+            } finally {
+                pendingResults.remove(proposalId);
+            }
+        } finally {
+            if (proposalGate != null) proposalGate.readLock().unlock();
+        }
     }
 
     /**
@@ -142,18 +587,72 @@ public class ServerImpl extends UnicastRemoteObject implements Proposer, Accepto
      * @throws RemoteException if there's any issue with RMI
      */
     @Override
-    public synchronized Boolean prepare(String proposalId, Operation oper) throws RemoteException {
+    public Boolean prepare(String proposalId, Operation oper) throws RemoteException {
         if(checkAcceptorStatus()) {
             return null;
         }
-        // check in the log for any highest value.
-        if(this.historyEntries.containsKey(oper.key)) {
-            if(Long.parseLong(this.historyEntries.get(oper.key).getKey().split(":")[1]) > Long.parseLong(proposalId.split(":")[1])) {
-                return false;
+        // a large value must already be in the value log before voting for it
+        if(oper.valueHash != null && !valueLog.contains(oper.valueHash)) {
+            return false;
+        }
+        synchronized (acceptorLock) {
+            // check in the log for any highest value.
+            if(this.historyEntries.containsKey(oper.key)) {
+                if(Long.parseLong(this.historyEntries.get(oper.key).getKey().split(":")[1]) > Long.parseLong(proposalId.split(":")[1])) {
+                    return false;
+                }
             }
+            this.historyEntries.put(oper.key, new Pair<>(proposalId, oper));
+            return true;
         }
-        this.historyEntries.put(oper.key, new Pair<>(proposalId, oper));
-        return true;
+    }
+
+    /**
+     * Process the pre-accept request of the leaderless fast path. The operation is recorded unless
+     * a newer proposal for the same key has been seen, and the last proposal seen for the key is
+     * returned as its dependency. Operations on different keys never depend on each other.
+     * @param proposalId The unique ID of the proposal.
+     * @param oper operation to be performed
+     * @return the reply with the dependency, null if the acceptor is down
+     * @throws RemoteException if there's any issue with RMI
+     */
+    @Override
+    public PreAcceptReply preAccept(String proposalId, Operation oper) throws RemoteException {
+        if(checkAcceptorStatus()) {
+            return null;
+        }
+        if(oper.valueHash != null && !valueLog.contains(oper.valueHash)) {
+            return new PreAcceptReply(false, null);
+        }
+        synchronized (acceptorLock) {
+            String dependency = null;
+            if(this.historyEntries.containsKey(oper.key)) {
+                String lastProposalId = this.historyEntries.get(oper.key).getKey();
+                if(!lastProposalId.equals(proposalId)) {
+                    // only older proposals become dependencies, so dependencies can never form a cycle
+                    if(isOlder(proposalId, lastProposalId)) {
+                        return new PreAcceptReply(false, null);
+                    }
+                    dependency = lastProposalId;
+                }
+            }
+            this.historyEntries.put(oper.key, new Pair<>(proposalId, oper));
+            return new PreAcceptReply(true, dependency);
+        }
+    }
+
+    /**
+     * Order proposal IDs by timestamp, breaking ties by server ID.
+     * @param proposalId The proposal to check.
+     * @param otherProposalId The proposal to compare against.
+     * @return true if proposalId was issued before otherProposalId
+     */
+    private boolean isOlder(String proposalId, String otherProposalId) {
+        long time = Long.parseLong(proposalId.split(":")[1]);
+        long otherTime = Long.parseLong(otherProposalId.split(":")[1]);
+        if(time != otherTime)
+            return time < otherTime;
+        return proposalId.compareTo(otherProposalId) < 0;
     }
 
     /**
@@ -164,16 +663,21 @@ public class ServerImpl extends UnicastRemoteObject implements Proposer, Accepto
      * @throws RemoteException if issue arises with RMI
      */
     @Override
-    public synchronized void accept(String proposalId, Operation proposalValue) throws RemoteException {
+    public void accept(String proposalId, Operation proposalValue) throws RemoteException {
         if(checkAcceptorStatus()) {
             return;
         }
-        // check in the log for any highest value.
-        if(this.historyEntries.containsKey(proposalValue.key)) {
-            if(Long.parseLong(this.historyEntries.get(proposalValue.key).getKey().split(":")[1]) <= Long.parseLong(proposalId.split(":")[1])) {
-                for(Learner learner : this.knowledgeLearners) {
-                    learner.learn(proposalId, proposalValue);
-                }
+        boolean accepted = false;
+        synchronized (acceptorLock) {
+            // check in the log for any highest value.
+            if(this.historyEntries.containsKey(proposalValue.key)) {
+                accepted = Long.parseLong(this.historyEntries.get(proposalValue.key).getKey().split(":")[1]) <= Long.parseLong(proposalId.split(":")[1]);
+            }
+        }
+        // the learners are called without the acceptor lock held
+        if(accepted) {
+            for(Learner learner : this.knowledgeLearners) {
+                learner.learn(proposalId, proposalValue);
             }
         }
     }
@@ -189,8 +693,11 @@ public class ServerImpl extends UnicastRemoteObject implements Proposer, Accepto
      * @throws InterruptedException if sleep is interrupted
      */
     @Override
-    public synchronized void propose(String proposalId, Operation proposalValue)
+    public void propose(String proposalId, Operation proposalValue)
             throws RemoteException {
+        if(leaderlessMode && fastPathCommit(proposalId, proposalValue)) {
+            return;
+        }
         // Implement Paxos propose logic here
         List<Boolean> prepareResponse = new ArrayList<>();
         for(Acceptor acceptor : this.consensusAcceptors) {
@@ -213,6 +720,160 @@ public class ServerImpl extends UnicastRemoteObject implements Proposer, Accepto
                     this.consensusAcceptors[i].accept(proposalId, proposalValue);
             }
         }
+        // operations recorded as depending on this one must not wait for it forever
+        boolean decided;
+        synchronized (learnerLock) {
+            decided = isDecided(proposalId);
+        }
+        if(leaderlessMode && !decided) {
+            for(Learner learner : this.knowledgeLearners) {
+                learner.abandon(proposalId);
+            }
+        }
+    }
+
+    /**
+     * Check whether this server has applied a proposal or is holding it until its dependencies
+     * have been applied.
+     * @param proposalId The unique identifier for the proposal.
+     * @return true if the proposal reached a quorum here
+     */
+    private boolean isDecided(String proposalId) {
+        Pair<Integer, Boolean> learnerPair = this.learningRecord.get(proposalId);
+        return (learnerPair != null && learnerPair.getValue()) || waitingOperations.containsKey(proposalId);
+    }
+
+    /**
+     * Try to commit an operation in one round trip. If a fast quorum of acceptors agrees and every
+     * agreeing acceptor reports the same dependency, the operation is committed straight to the
+     * learners with that dependency. Otherwise it carries the union of the reported dependencies
+     * into the prepare/accept rounds, and learners apply it only after all of them.
+     * @param proposalId The unique identifier for the proposal.
+     * @param proposalValue The value being proposed.
+     * @return true if the operation was committed on the fast path
+     * @throws RemoteException if issue arises with RMI
+     */
+    private boolean fastPathCommit(String proposalId, Operation proposalValue) throws RemoteException {
+        int faults = (consensusAcceptors.length - 1) / 2;
+        int fastQuorum = faults + (faults + 1) / 2;
+        int agreeCount = 0;
+        Set<String> dependencies = new HashSet<>();
+        boolean sameDependency = true;
+        String firstDependency = null;
+        for(Acceptor acceptor : this.consensusAcceptors) {
+            PreAcceptReply reply = acceptor.preAccept(proposalId, proposalValue);
+            if(reply == null || !reply.isAccepted())
+                continue;
+            if(agreeCount == 0)
+                firstDependency = reply.getDependency();
+            else if(firstDependency == null ? reply.getDependency() != null : !firstDependency.equals(reply.getDependency()))
+                sameDependency = false;
+            if(reply.getDependency() != null)
+                dependencies.add(reply.getDependency());
+            agreeCount += 1;
+        }
+        proposalValue.dependencies = dependencies;
+        if(agreeCount < fastQuorum || !sameDependency) {
+            helper.logMessage("Fast path conflict for Key - " + proposalValue.key + ", falling back to prepare");
+            return false;
+        }
+        for(Learner learner : this.knowledgeLearners) {
+            learner.commit(proposalId, proposalValue);
+        }
+        return true;
+    }
+
+    /**
+     * Apply an operation committed on the leaderless fast path.
+     * @param proposalId The unique identifier for the proposal.
+     * @param acceptedValue The value that has been committed.
+     * @throws RemoteException if any issue with the RMI
+     */
+    @Override
+    public void commit(String proposalId, Operation acceptedValue) throws RemoteException {
+        synchronized (learnerLock) {
+            if(!this.learningRecord.containsKey(proposalId)) {
+                this.learningRecord.put(proposalId, new Pair<>(0, false));
+            }
+            if(!isDecided(proposalId)) {
+                executeWhenReady(proposalId, acceptedValue);
+            }
+        }
+    }
+
+    /**
+     * Mark a proposal that will never be committed as resolved and release the operations that
+     * were waiting for it.
+     * @param proposalId The unique identifier for the proposal.
+     * @throws RemoteException if any issue with the RMI
+     */
+    @Override
+    public void abandon(String proposalId) throws RemoteException {
+        synchronized (learnerLock) {
+            Pair<Integer, Boolean> learnerPair = this.learningRecord.get(proposalId);
+            if(learnerPair == null) {
+                learnerPair = new Pair<>(0, false);
+                this.learningRecord.put(proposalId, learnerPair);
+            }
+            if(!isDecided(proposalId)) {
+                learnerPair.setValue(true);
+                releaseWaitingOperations();
+            }
+        }
+    }
+
+    /**
+     * Apply a decided operation if every proposal it depends on has been resolved here, otherwise
+     * hold it until they have.
+     * @param proposalId The unique identifier for the proposal.
+     * @param operation The decided operation.
+     * @throws RemoteException if any issue with the RMI
+     */
+    private void executeWhenReady(String proposalId, Operation operation) throws RemoteException {
+        if(!dependenciesResolved(operation)) {
+            helper.logMessage("Holding operation on Key - " + operation.key + " until its dependencies are applied");
+            waitingOperations.put(proposalId, operation);
+            return;
+        }
+        pendingResults.replace(proposalId, executeOperation(operation));
+        this.learningRecord.get(proposalId).setValue(true);
+        releaseWaitingOperations();
+    }
+
+    /**
+     * Apply every held operation whose dependencies have all been resolved, repeating until no
+     * more become ready.
+     * @throws RemoteException if any issue with the RMI
+     */
+    private void releaseWaitingOperations() throws RemoteException {
+        boolean released = true;
+        while(released) {
+            released = false;
+            for(Map.Entry<String, Operation> entry : new ArrayList<>(waitingOperations.entrySet())) {
+                if(dependenciesResolved(entry.getValue())) {
+                    waitingOperations.remove(entry.getKey());
+                    pendingResults.replace(entry.getKey(), executeOperation(entry.getValue()));
+                    this.learningRecord.get(entry.getKey()).setValue(true);
+                    released = true;
+                }
+            }
+        }
+    }
+
+    /**
+     * Check that every dependency of an operation has been applied or abandoned here.
+     * @param operation The operation to check.
+     * @return true if the operation can be applied
+     */
+    private boolean dependenciesResolved(Operation operation) {
+        if(operation == null)
+            return true;
+        for(String dependency : operation.dependencies) {
+            Pair<Integer, Boolean> learnerPair = this.learningRecord.get(dependency);
+            if(learnerPair == null || !learnerPair.getValue())
+                return false;
+        }
+        return true;
     }
 
     /**
@@ -222,18 +883,19 @@ public class ServerImpl extends UnicastRemoteObject implements Proposer, Accepto
      * @throws RemoteException if any issue with the RMI
      */
     @Override
-    public synchronized void learn(String proposalId, Operation acceptedValue) throws RemoteException {
+    public void learn(String proposalId, Operation acceptedValue) throws RemoteException {
         // Implement Paxos learn logic here
-        if(!this.learningRecord.containsKey(proposalId)) {
-            this.learningRecord.put(proposalId, new Pair<>(1, false));
-        } else {
-            Pair<Integer, Boolean> learnerPair = this.learningRecord.get(proposalId);
-            learnerPair.setKey(learnerPair.getKey()+1);
-            if(learnerPair.getKey() >= Math.ceil(consensusAcceptors.length/divisionFactor) && !learnerPair.getValue()) {
-                this.success = executeOperation(acceptedValue);
-                learnerPair.setValue(true);
+        synchronized (learnerLock) {
+            if(!this.learningRecord.containsKey(proposalId)) {
+                this.learningRecord.put(proposalId, new Pair<>(1, false));
+            } else {
+                Pair<Integer, Boolean> learnerPair = this.learningRecord.get(proposalId);
+                learnerPair.setKey(learnerPair.getKey()+1);
+                if(learnerPair.getKey() >= Math.ceil(consensusAcceptors.length/divisionFactor) && !isDecided(proposalId)) {
+                    executeWhenReady(proposalId, acceptedValue);
+                }
+                this.learningRecord.put(proposalId, learnerPair);
             }
-            this.learningRecord.put(proposalId, learnerPair);
         }
     }
 
@@ -241,9 +903,10 @@ public class ServerImpl extends UnicastRemoteObject implements Proposer, Accepto
      * Generates a unique proposal ID.
      * @return A unique proposal ID.
      */
-    private String generateProposalId() throws RemoteException {
-        // Placeholder code to generate a unique proposal ID
-        return uniqueServerId + ":" + System.currentTimeMillis();
+    private synchronized String generateProposalId() throws RemoteException {
+        // proposals now run concurrently, so two in the same millisecond must not share an ID
+        lastProposalTime = Math.max(System.currentTimeMillis(), lastProposalTime + 1);
+        return uniqueServerId + ":" + lastProposalTime;
     }
 
     /**
@@ -254,23 +917,86 @@ public class ServerImpl extends UnicastRemoteObject implements Proposer, Accepto
         if (operation == null) return false;
         switch (operation.type.toUpperCase()) {
             case "PUT":
-                keyValueStore.put(operation.key, operation.value);
-                helper.logMessage("PUT Operation successful for Key:Value - " + operation.key + ":" + operation.value);
+                String value = operation.value;
+                if (operation.valueHash != null) {
+                    // share the value log's copy rather than keeping a second one
+                    value = valueLog.get(operation.valueHash);
+                    if (value == null)
+                        value = fetchValue(operation.valueHash, operation.valueLength);
+                    if (value == null) {
+                        // never keep the old value, it would silently diverge from the other replicas
+                        if (keyValueStore.containsKey(operation.key))
+                            removeKey(operation.key);
+                        helper.logError("PUT Operation Failed for Key - " + operation.key + ", value " + operation.valueHash + " unavailable, stale entry removed");
+                        return false;
+                    }
+                }
+                keyValueStore.put(operation.key, value);
+                if (sortedIndex != null) sortedIndex.add(operation.key);
+                if (operation.expiresAt > 0) {
+                    expiryDeadlines.put(operation.key, operation.expiresAt);
+                    expiryWheel.add(operation.key, operation.expiresAt);
+                } else {
+                    expiryDeadlines.remove(operation.key);
+                }
+                changeLog.append("PUT", operation.key, value);
+                helper.logMessage("PUT Operation successful for Key:Value - " + operation.key + ":" + (operation.valueHash != null ? operation.valueHash : value));
                 return true;
             case "DELETE":
+                if (snapshot != null) loadFromSnapshot(operation.key);
                 if(keyValueStore.containsKey(operation.key)) {
-                    keyValueStore.remove(operation.key);
+                    removeKey(operation.key);
                     helper.logMessage("DELETE Operation successful for Key - " + operation.key );
                     return true;
                 } else {
                    helper.logMessage("DELETE Operation Failed for Key - " + operation.key );
                     return false;
                 }
+            case "EXPIRE":
+                expireKeys(operation.expiresAt);
+                return true;
             default:
                 helper.logError("Unknown operation type: " + operation.type);
                 return false;
         }
     }
+
+    /**
+     * Remove a key from the store along with its index and expiry entries.
+     * @param key The key to remove.
+     */
+    private void removeKey(String key) {
+        keyValueStore.remove(key);
+        if (snapshot != null) removedSinceSnapshot.add(key);
+        if (sortedIndex != null) sortedIndex.remove(key);
+        expiryDeadlines.remove(key);
+        changeLog.append("DELETE", key, null);
+    }
+
+    /**
+     * Purge every key whose deadline is at or before the cutoff carried by an EXPIRE operation.
+     * Wheel entries left behind by a later PUT or DELETE of the same key are skipped, so every
+     * replica removes exactly the same keys.
+     * @param cutoff The expiry time decided by the proposer.
+     */
+    private void expireKeys(long cutoff) {
+        List<Pair<String, Long>> drained = new ArrayList<>();
+        expiryWheel.advance(cutoff, (key, deadline) -> drained.add(new Pair<>(key, deadline)));
+        int expired = 0;
+        for (Pair<String, Long> entry : drained) {
+            if (!entry.getValue().equals(expiryDeadlines.get(entry.getKey()))) {
+                continue;
+            }
+            if (entry.getValue() <= cutoff) {
+                removeKey(entry.getKey());
+                expired++;
+            } else {
+                expiryWheel.add(entry.getKey(), entry.getValue());
+            }
+        }
+        helper.logMessage("EXPIRE Operation removed " + expired + " keys");
+    }
+
     /**
      * Set an Server as down
      */
@@ -289,6 +1015,10 @@ class Operation {
     String type;
     String key;
     String value;
+    long expiresAt;
+    String valueHash;
+    int valueLength;
+    Set<String> dependencies = new HashSet<>();
 
     /**
      * Constructor to create an Operation instance.
@@ -302,6 +1032,18 @@ class Operation {
         this.value = value;
     }
 
+    /**
+     * Constructor to create an Operation instance with an expiry deadline.
+     * @param type The type of operation (PUT or EXPIRE).
+     * @param key The key associated with the operation.
+     * @param value The value associated with the operation (used in PUT operations).
+     * @param expiresAt The time the key expires for PUT, or the purge cutoff for EXPIRE.
+     */
+    Operation(String type, String key, String value, long expiresAt) {
+        this(type, key, value);
+        this.expiresAt = expiresAt;
+    }
+
 }
 
 /**
@@ -0,0 +1,193 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Snapshot is an on-disk image of the key-value store that is memory-mapped on restart instead of
+ * being read into memory. The file holds a fixed header, the records in key order, and an index of
+ * record offsets, so a key is found by binary search over the mapped file and nothing has to be
+ * loaded up front. Every replica is snapshotted at the same cut, recorded in the header, so the
+ * replicas can agree on which snapshot to restart from.
+ *
+ * <pre>
+ * header : magic (int) | version (int) | cut (long) | lastIndex (long) | count (int) | indexOffset (long)
+ * record : keyLength (int) | key | valueLength (int) | value | expiresAt (long)
+ * index  : count record offsets (long), ordered by key
+ * </pre>
+ *
+ * A single mapping is used, so a snapshot is limited to 2 GB.
+ */
+public class Snapshot {
+
+    private static final int MAGIC = 0x4B565350;
+    private static final int VERSION = 2;
+    private static final int HEADER_SIZE = 36;
+
+    private final MappedByteBuffer buffer;
+    private final long cut;
+    private final long lastIndex;
+    private final int count;
+    private final int indexOffset;
+
+    private Snapshot(MappedByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IOException("Not a snapshot file");
+        }
+        this.cut = buffer.getLong(8);
+        this.lastIndex = buffer.getLong(16);
+        this.count = buffer.getInt(24);
+        this.indexOffset = (int) buffer.getLong(28);
+    }
+
+    /**
+     * Memory-map an existing snapshot file.
+     * @param path the snapshot file
+     * @return the mapped snapshot
+     * @throws IOException if the file can't be mapped or is not a snapshot
+     */
+    public static Snapshot open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return new Snapshot(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Write a snapshot file. The file is written next to the target and moved into place once
+     * complete, so a crash mid-write leaves the previous snapshot intact.
+     *
+     * @param path            the snapshot file
+     * @param cut             identifies the cut shared by the replicas' snapshots, later cuts are larger
+     * @param lastIndex       apply index of the last change included
+     * @param entries         the key-value pairs in key order
+     * @param expiryDeadlines expiry deadlines of the keys that have one
+     * @throws IOException if the file can't be written
+     */
+    public static void write(Path path, long cut, long lastIndex, List<Map.Entry<String, String>> entries,
+                             Map<String, Long> expiryDeadlines) throws IOException {
+        Path tempPath = path.resolveSibling(path.getFileName() + ".tmp");
+        long[] offsets = new long[entries.size()];
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempPath)))) {
+            long offset = HEADER_SIZE;
+            int i = 0;
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            out.write(header.array());
+            for (Map.Entry<String, String> entry : entries) {
+                byte[] key = entry.getKey().getBytes(StandardCharsets.UTF_8);
+                byte[] value = entry.getValue().getBytes(StandardCharsets.UTF_8);
+                Long expiresAt = expiryDeadlines.get(entry.getKey());
+                offsets[i++] = offset;
+                out.writeInt(key.length);
+                out.write(key);
+                out.writeInt(value.length);
+                out.write(value);
+                out.writeLong(expiresAt != null ? expiresAt : 0);
+                offset += 4 + key.length + 4 + value.length + 8;
+            }
+            if (offset + 8L * offsets.length > Integer.MAX_VALUE) {
+                throw new IOException("Snapshot exceeds the 2 GB mapping limit");
+            }
+            for (long recordOffset : offsets) {
+                out.writeLong(recordOffset);
+            }
+            out.flush();
+            header.putInt(MAGIC).putInt(VERSION).putLong(cut).putLong(lastIndex).putInt(offsets.length).putLong(offset);
+            try (FileChannel channel = FileChannel.open(tempPath, StandardOpenOption.WRITE)) {
+                header.flip();
+                channel.write(header, 0);
+                channel.force(true);
+            }
+        }
+        Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Get the cut the snapshot was taken at.
+     * @return the cut
+     */
+    public long getCut() {
+        return cut;
+    }
+
+    /**
+     * Get the apply index of the last change included in the snapshot.
+     * @return the last apply index
+     */
+    public long getLastIndex() {
+        return lastIndex;
+    }
+
+    /**
+     * Get the number of records in the snapshot.
+     * @return number of records
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Find the position of a key.
+     * @param key the key to look up
+     * @return the record position, or -1 if the key is not in the snapshot
+     */
+    public int find(String key) {
+        int position = ceiling(key);
+        return position < count && keyAt(position).equals(key) ? position : -1;
+    }
+
+    /**
+     * Find the position of the first key greater than or equal to the given key.
+     * @param key the key to look up
+     * @return the record position, or size() if every key is smaller
+     */
+    public int ceiling(String key) {
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (keyAt(mid).compareTo(key) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    public String keyAt(int position) {
+        return readString(recordOffset(position));
+    }
+
+    public String valueAt(int position) {
+        int keyOffset = recordOffset(position);
+        return readString(keyOffset + 4 + buffer.getInt(keyOffset));
+    }
+
+    public long expiresAt(int position) {
+        int keyOffset = recordOffset(position);
+        int valueOffset = keyOffset + 4 + buffer.getInt(keyOffset);
+        return buffer.getLong(valueOffset + 4 + buffer.getInt(valueOffset));
+    }
+
+    private int recordOffset(int position) {
+        return (int) buffer.getLong(indexOffset + 8 * position);
+    }
+
+    private String readString(int offset) {
+        byte[] data = new byte[buffer.getInt(offset)];
+        ByteBuffer view = buffer.duplicate();
+        view.position(offset + 4);
+        view.get(data);
+        return new String(data, StandardCharsets.UTF_8);
+    }
+}
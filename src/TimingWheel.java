@@ -0,0 +1,124 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+/**
+ * TimingWheel is a hierarchical timing wheel used to track key expiry deadlines. Each level has a
+ * fixed number of buckets, each covering one tick; deadlines beyond the range of a level go to a
+ * coarser overflow level, created on demand, and are cascaded down as time approaches them. Adding
+ * a deadline and advancing time by one tick are both constant-time operations. A bucket keeps every
+ * entry added to it, so a key may appear more than once with different deadlines; the caller
+ * decides which of them is current.
+ */
+public class TimingWheel {
+
+    private final long tickMillis;
+    private final int wheelSize;
+    private final long interval;
+    private final List<List<Entry>> buckets;
+    private long currentTime;
+    private int count = 0;
+    private TimingWheel overflow;
+
+    /**
+     * Constructs a TimingWheel.
+     * @param tickMillis duration covered by one bucket
+     * @param wheelSize  number of buckets in each level
+     * @param startTime  time the wheel starts from
+     */
+    public TimingWheel(long tickMillis, int wheelSize, long startTime) {
+        this.tickMillis = tickMillis;
+        this.wheelSize = wheelSize;
+        this.interval = tickMillis * wheelSize;
+        this.currentTime = startTime - (startTime % tickMillis);
+        this.buckets = new ArrayList<>(wheelSize);
+        for (int i = 0; i < wheelSize; i++) {
+            buckets.add(new ArrayList<>());
+        }
+    }
+
+    /**
+     * Track a key expiring at the given deadline. A deadline that has already passed is placed in
+     * the next bucket to be drained.
+     * @param key      the key to expire
+     * @param deadline time at which the key expires
+     */
+    public void add(String key, long deadline) {
+        long slotTime = Math.max(deadline, currentTime);
+        if (slotTime < currentTime + interval) {
+            buckets.get((int) ((slotTime / tickMillis) % wheelSize)).add(new Entry(key, deadline));
+            count++;
+        } else {
+            if (overflow == null) {
+                overflow = new TimingWheel(interval, wheelSize, currentTime - (currentTime % interval) + interval);
+            }
+            overflow.add(key, deadline);
+        }
+    }
+
+    /**
+     * Advance the wheel to the given time, handing every entry whose bucket has started by then to
+     * the sink. Entries are bucketed by tick, so the sink may receive deadlines up to one tick after
+     * now and must check them itself.
+     * @param now  time to advance to
+     * @param sink receives the key and deadline of each drained entry
+     */
+    public void advance(long now, BiConsumer<String, Long> sink) {
+        while (currentTime <= now) {
+            if (isEmpty()) {
+                // nothing to drain, jump straight past now
+                currentTime = now - (now % tickMillis) + tickMillis;
+                overflow = null;
+                return;
+            }
+            if (overflow != null && currentTime % interval == 0) {
+                overflow.advance(currentTime, this::add);
+            }
+            // swap in an empty bucket first so entries the sink adds back are not lost
+            int slot = (int) ((currentTime / tickMillis) % wheelSize);
+            List<Entry> bucket = buckets.set(slot, new ArrayList<>());
+            count -= bucket.size();
+            for (Entry entry : bucket) {
+                sink.accept(entry.key, entry.deadline);
+            }
+            currentTime += tickMillis;
+        }
+    }
+
+    /**
+     * Check whether any tracked deadline is at or before the given time.
+     * @param now time to check against
+     * @return true if an entry is due
+     */
+    public boolean hasDue(long now) {
+        for (long t = currentTime; t <= now && t < currentTime + interval; t += tickMillis) {
+            for (Entry entry : buckets.get((int) ((t / tickMillis) % wheelSize))) {
+                if (entry.deadline <= now) {
+                    return true;
+                }
+            }
+        }
+        return overflow != null && overflow.hasDue(now);
+    }
+
+    /**
+     * Check whether the wheel tracks no entries at any level.
+     * @return true if empty
+     */
+    public boolean isEmpty() {
+        return count == 0 && (overflow == null || overflow.isEmpty());
+    }
+
+    /**
+     * A key and the deadline it was added with.
+     */
+    private static class Entry {
+        final String key;
+        final long deadline;
+
+        Entry(String key, long deadline) {
+            this.key = key;
+            this.deadline = deadline;
+        }
+    }
+}
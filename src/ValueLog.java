@@ -0,0 +1,158 @@
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * ValueLog is a content-addressed store for large values. Values arrive in chunks, are verified
+ * against their SHA-256 hash once complete, and are then looked up by that hash, so consensus
+ * messages only need to carry the hash and length. Values no longer referenced are reclaimed by
+ * {@link #collectGarbage(Set, long)}.
+ */
+public class ValueLog {
+
+    private final Map<String, PartialValue> partialValues = new HashMap<>();
+    private final Map<String, String> values = new HashMap<>();
+    // the verified bytes are kept next to the shared String so chunk reads don't re-encode it
+    private final Map<String, byte[]> valueBytes = new HashMap<>();
+    private final Map<String, Long> lastTouched = new HashMap<>();
+
+    /**
+     * Compute the content hash of a value.
+     * @param value the value to hash
+     * @return hex encoded SHA-256 of the UTF-8 bytes of the value
+     */
+    public static String hash(String value) {
+        return hash(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String hash(byte[] data) {
+        try {
+            StringBuilder hex = new StringBuilder();
+            for (byte b : MessageDigest.getInstance("SHA-256").digest(data)) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * Store one chunk of a value. Once every byte has arrived the value is verified against its
+     * hash and becomes available through {@link #get(String)}.
+     *
+     * @param valueHash   hash of the complete value
+     * @param valueLength length of the complete value in bytes
+     * @param offset      position of the chunk within the value
+     * @param chunk       the chunk bytes
+     * @return false if the chunk does not fit the value or the completed value fails verification
+     */
+    public synchronized boolean storeChunk(String valueHash, int valueLength, int offset, byte[] chunk) {
+        lastTouched.put(valueHash, System.currentTimeMillis());
+        if (values.containsKey(valueHash)) {
+            return true;
+        }
+        if (offset < 0 || offset + chunk.length > valueLength) {
+            return false;
+        }
+        PartialValue partial = partialValues.computeIfAbsent(valueHash, h -> new PartialValue(valueLength));
+        if (partial.data.length != valueLength) {
+            return false;
+        }
+        if (partial.offsets.add(offset)) {
+            System.arraycopy(chunk, 0, partial.data, offset, chunk.length);
+            partial.received += chunk.length;
+        }
+        if (partial.received < valueLength) {
+            return true;
+        }
+        partialValues.remove(valueHash);
+        if (!hash(partial.data).equals(valueHash)) {
+            lastTouched.remove(valueHash);
+            return false;
+        }
+        values.put(valueHash, new String(partial.data, StandardCharsets.UTF_8));
+        valueBytes.put(valueHash, partial.data);
+        return true;
+    }
+
+    /**
+     * Check whether a complete value is stored.
+     * @param valueHash hash of the value
+     * @return true if the value is available
+     */
+    public synchronized boolean contains(String valueHash) {
+        return values.containsKey(valueHash);
+    }
+
+    /**
+     * Get a complete value.
+     * @param valueHash hash of the value
+     * @return the value, or null if it is missing or still incomplete
+     */
+    public synchronized String get(String valueHash) {
+        return values.get(valueHash);
+    }
+
+    /**
+     * Read part of a complete value.
+     * @param valueHash hash of the value
+     * @param offset    position of the first byte to read
+     * @param length    number of bytes to read
+     * @return the bytes read, or null if the value is missing or the range is outside it
+     */
+    public synchronized byte[] readChunk(String valueHash, int offset, int length) {
+        byte[] data = valueBytes.get(valueHash);
+        if (data == null) {
+            return null;
+        }
+        if (offset < 0 || length < 0 || offset + length > data.length) {
+            return null;
+        }
+        lastTouched.put(valueHash, System.currentTimeMillis());
+        return Arrays.copyOfRange(data, offset, offset + length);
+    }
+
+    /**
+     * Drop every complete or partial value that is not in the live set and has not been touched
+     * since the given time. The grace period keeps values that were uploaded for a proposal still
+     * in flight.
+     *
+     * @param liveHashes hashes still referenced by acceptor state
+     * @param olderThan  only values last touched before this time are dropped
+     * @return number of values dropped
+     */
+    public synchronized int collectGarbage(Set<String> liveHashes, long olderThan) {
+        Set<String> dead = new HashSet<>();
+        for (Map.Entry<String, Long> entry : lastTouched.entrySet()) {
+            if (entry.getValue() < olderThan && !liveHashes.contains(entry.getKey())) {
+                dead.add(entry.getKey());
+            }
+        }
+        for (String valueHash : dead) {
+            values.remove(valueHash);
+            valueBytes.remove(valueHash);
+            partialValues.remove(valueHash);
+            lastTouched.remove(valueHash);
+        }
+        return dead.size();
+    }
+
+    /**
+     * A value whose chunks are still arriving.
+     */
+    private static class PartialValue {
+        final byte[] data;
+        final Set<Integer> offsets = new HashSet<>();
+        int received = 0;
+
+        PartialValue(int length) {
+            this.data = new byte[length];
+        }
+    }
+}
@@ -0,0 +1,35 @@
+import java.rmi.Remote;
+import java.rmi.RemoteException;
+
+/**
+ * The ValueReplica interface lets a proposer ship a large value to a replica ahead of consensus.
+ * The value is sent once, in chunks, and stored by content hash; the Paxos messages that follow
+ * carry only the hash and length.
+ */
+public interface ValueReplica extends Remote {
+
+    /**
+     * Stores one chunk of a large value in the replica's value log.
+     *
+     * @param valueHash   SHA-256 hash of the complete value
+     * @param valueLength Length of the complete value in bytes
+     * @param offset      Position of this chunk within the value
+     * @param chunk       The chunk bytes
+     * @return True if the chunk was stored, false if it was rejected, null if the replica is down
+     * @throws RemoteException If a communication-related exception occurs
+     */
+    Boolean storeValueChunk(String valueHash, int valueLength, int offset, byte[] chunk)
+            throws RemoteException;
+
+    /**
+     * Reads one chunk of a large value from the replica's value log, used by a replica that has to
+     * apply an operation whose value it never received.
+     *
+     * @param valueHash SHA-256 hash of the complete value
+     * @param offset    Position of the chunk within the value
+     * @param length    Number of bytes to read
+     * @return The chunk bytes, or null if the replica is down or doesn't hold the value
+     * @throws RemoteException If a communication-related exception occurs
+     */
+    byte[] readValueChunk(String valueHash, int offset, int length) throws RemoteException;
+}
@@ -0,0 +1,153 @@
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * WatchBatch is a batch of change events returned to a watcher. Events are kept in a compact
+ * binary form (delta-encoded indexes, one byte per operation type, length-prefixed UTF-8 strings)
+ * so that a batch crosses RMI as a single byte array instead of a graph of objects.
+ */
+public class WatchBatch implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final byte TYPE_PUT = 0;
+    private static final byte TYPE_DELETE = 1;
+
+    private final byte[] payload;
+    private final int eventCount;
+    private final String source;
+    private final long nextIndex;
+    private final boolean truncated;
+
+    /**
+     * Constructs a WatchBatch from the given events.
+     *
+     * @param events    the events in apply order
+     * @param source    the change log the indexes belong to
+     * @param nextIndex the index the watcher should resume from
+     * @param truncated true if events before the requested index were already discarded
+     */
+    WatchBatch(List<WatchEvent> events, String source, long nextIndex, boolean truncated) {
+        this.payload = encode(events);
+        this.source = source;
+        this.eventCount = events.size();
+        this.nextIndex = nextIndex;
+        this.truncated = truncated;
+    }
+
+    /**
+     * Get the change log the indexes of this batch belong to. Apply indexes are local to a replica,
+     * so the source is passed back with the next index on the following watch call.
+     * @return the source of the batch
+     */
+    public String getSource() {
+        return source;
+    }
+
+    /**
+     * Get the index to pass as fromIndex on the next watch call.
+     * @return the resume index
+     */
+    public long getNextIndex() {
+        return nextIndex;
+    }
+
+    /**
+     * Check whether the watcher fell behind the retained change history. When true, some changes
+     * between the requested index and the first event in this batch were missed and the watcher
+     * should re-read the keys it cares about before continuing. This is also the case when the
+     * watcher resumes against a different source than the one its index came from.
+     * @return true if the batch does not start at the requested index
+     */
+    public boolean isTruncated() {
+        return truncated;
+    }
+
+    /**
+     * Get the number of events in this batch.
+     * @return number of events
+     */
+    public int size() {
+        return eventCount;
+    }
+
+    /**
+     * Decode the events carried in this batch.
+     * @return the events in apply order
+     */
+    public List<WatchEvent> getEvents() {
+        List<WatchEvent> events = new ArrayList<>(eventCount);
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload))) {
+            long index = 0;
+            for (int i = 0; i < eventCount; i++) {
+                index += readVarLong(in);
+                String type = in.readByte() == TYPE_PUT ? "PUT" : "DELETE";
+                String key = readString(in);
+                String value = in.readBoolean() ? readString(in) : null;
+                events.add(new WatchEvent(index, type, key, value));
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Corrupt watch batch", e);
+        }
+        return events;
+    }
+
+    private static byte[] encode(List<WatchEvent> events) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            long previousIndex = 0;
+            for (WatchEvent event : events) {
+                writeVarLong(out, event.getIndex() - previousIndex);
+                previousIndex = event.getIndex();
+                out.writeByte("PUT".equals(event.getType()) ? TYPE_PUT : TYPE_DELETE);
+                writeString(out, event.getKey());
+                out.writeBoolean(event.getValue() != null);
+                if (event.getValue() != null) {
+                    writeString(out, event.getValue());
+                }
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to encode watch batch", e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        byte[] data = s.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(out, data.length);
+        out.write(data);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] data = new byte[(int) readVarLong(in)];
+        in.readFully(data);
+        return new String(data, StandardCharsets.UTF_8);
+    }
+
+    private static void writeVarLong(DataOutputStream out, long v) throws IOException {
+        while ((v & ~0x7FL) != 0) {
+            out.writeByte((int) ((v & 0x7F) | 0x80));
+            v >>>= 7;
+        }
+        out.writeByte((int) v);
+    }
+
+    private static long readVarLong(DataInputStream in) throws IOException {
+        long result = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = in.readByte();
+            result |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return result;
+    }
+}
@@ -0,0 +1,47 @@
+/**
+ * WatchEvent represents a single committed change (PUT or DELETE) on the key-value store,
+ * tagged with the index at which it was applied.
+ */
+public class WatchEvent {
+
+    private final long index;
+    private final String type;
+    private final String key;
+    private final String value;
+
+    /**
+     * Constructs a WatchEvent.
+     *
+     * @param index the apply index of the change
+     * @param type  the type of change (PUT or DELETE)
+     * @param key   the key that was changed
+     * @param value the new value for PUT, null for DELETE
+     */
+    public WatchEvent(long index, String type, String key, String value) {
+        this.index = index;
+        this.type = type;
+        this.key = key;
+        this.value = value;
+    }
+
+    public long getIndex() {
+        return index;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    @Override
+    public String toString() {
+        return index + " " + type + " " + key + (value != null ? " " + value : "");
+    }
+}